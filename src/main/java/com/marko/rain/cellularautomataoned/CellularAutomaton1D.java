@@ -10,14 +10,32 @@ public class CellularAutomaton1D extends JPanel {
     private static final int WIDTH = 800;
     private static final int HEIGHT = 400;
     private static final int CELLS = WIDTH / CELL_SIZE;
-    private int[] cells = new int[CELLS];
-    private int rule;
+    private byte[] cells = new byte[CELLS];
+    private byte[] nextCells = new byte[CELLS];
+    private Rule1D rule;
+    private Color[] palette;
 
     public CellularAutomaton1D(int rule) {
+        this(Rule1D.elementary(rule), defaultPalette(2));
+    }
+
+    public CellularAutomaton1D(Rule1D rule, Color[] palette) {
         this.rule = rule;
+        this.palette = palette;
         cells[CELLS / 2] = 1;
     }
 
+    // State 0 is white, the rest run from black through the hue circle
+    public static Color[] defaultPalette(int states) {
+        Color[] palette = new Color[states];
+        palette[0] = Color.WHITE;
+        palette[1] = Color.BLACK;
+        for (int s = 2; s < states; s++) {
+            palette[s] = Color.getHSBColor((float) (s - 2) / (states - 2), 0.8f, 0.9f);
+        }
+        return palette;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -25,7 +43,8 @@ public class CellularAutomaton1D extends JPanel {
         int y = 0;
         for (int row = 0; row < HEIGHT / CELL_SIZE; row++) {
             for (int x = 0; x < CELLS; x++) {
-                if (cells[x] == 1) {
+                if (cells[x] != 0) {
+                    g.setColor(palette[cells[x]]);
                     g.fillRect(x * CELL_SIZE, y, CELL_SIZE, CELL_SIZE);
                 }
             }
@@ -35,22 +54,10 @@ public class CellularAutomaton1D extends JPanel {
     }
 
     private void evolve() {
-        int[] newCells = new int[CELLS];
-        for (int i = 1; i < CELLS - 1; i++) {
-            int left = cells[i - 1];
-            int center = cells[i];
-            int right = cells[i + 1];
-
-            if (left == 1 && center == 1 && right == 1) newCells[i] = (rule / 128) % 2;
-            else if (left == 1 && center == 1 && right == 0) newCells[i] = (rule / 64) % 2;
-            else if (left == 1 && center == 0 && right == 1) newCells[i] = (rule / 32) % 2;
-            else if (left == 1 && center == 0 && right == 0) newCells[i] = (rule / 16) % 2;
-            else if (left == 0 && center == 1 && right == 1) newCells[i] = (rule / 8) % 2;
-            else if (left == 0 && center == 1 && right == 0) newCells[i] = (rule / 4) % 2;
-            else if (left == 0 && center == 0 && right == 1) newCells[i] = (rule / 2) % 2;
-            else if (left == 0 && center == 0 && right == 0) newCells[i] = rule % 2;
-        }
-        cells = newCells;
+        rule.step(cells, nextCells);
+        byte[] tmp = cells;
+        cells = nextCells;
+        nextCells = tmp;
     }
 
     public static void main(String[] args) {
@@ -60,9 +67,9 @@ public class CellularAutomaton1D extends JPanel {
             frame.setSize(WIDTH, HEIGHT + 50);
 
             JPanel inputPanel = new JPanel();
-            JTextField ruleInput = new JTextField("110", 5);
+            JTextField ruleInput = new JTextField("110", 16);
             JButton startButton = new JButton("Start");
-            inputPanel.add(new JLabel("Enter Rule (0-255):"));
+            inputPanel.add(new JLabel("Enter Rule (110, or k=3 r=1 t 777):"));
             inputPanel.add(ruleInput);
             inputPanel.add(startButton);
 
@@ -76,14 +83,14 @@ public class CellularAutomaton1D extends JPanel {
                 @Override
                 public void actionPerformed(ActionEvent e) {
                     try {
-                        int rule = Integer.parseInt(ruleInput.getText());
-                        if (rule < 0 || rule > 255) throw new NumberFormatException();
+                        Rule1D rule = Rule1D.parse(ruleInput.getText());
                         automaton.rule = rule;
-                        automaton.cells = new int[CELLS];
+                        automaton.palette = defaultPalette(rule.getStates());
+                        automaton.cells = new byte[CELLS];
                         automaton.cells[CELLS / 2] = 1;
                         automaton.repaint();
-                    } catch (NumberFormatException ex) {
-                        JOptionPane.showMessageDialog(frame, "Please enter a number between 0 and 255.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                    } catch (IllegalArgumentException ex) {
+                        JOptionPane.showMessageDialog(frame, "Please enter a rule number, optionally preceded by k=<states> r=<radius> and t for totalistic.\n" + ex.getMessage(), "Invalid Input", JOptionPane.ERROR_MESSAGE);
                     }
                 }
             });
@@ -0,0 +1,161 @@
+package com.marko.rain.cellularautomataoned;
+
+import java.math.BigInteger;
+
+/*
+ * A k-state, radius-r 1D rule compiled to a lookup table. Each cell state takes `bits` bits, so the
+ * neighbourhood of a cell is a rolling (2r+1)*bits wide code: shift in the next cell, mask off the
+ * one that left, and the code indexes the table directly.
+ */
+public final class Rule1D {
+    private static final int MAX_TABLE_BITS = 24;
+    private static final int MAX_STATES = 36;
+
+    private final int states;
+    private final int radius;
+    private final boolean totalistic;
+    private final BigInteger code;
+    private final int bits;
+    private final byte[] table;
+    private final byte[] sumTable;
+
+    private Rule1D(int states, int radius, boolean totalistic, BigInteger code) {
+        if (states < 2 || states > MAX_STATES) throw new IllegalArgumentException("States must be between 2 and " + MAX_STATES);
+        if (radius < 1) throw new IllegalArgumentException("Radius must be at least 1");
+        this.states = states;
+        this.radius = radius;
+        this.totalistic = totalistic;
+        this.code = code;
+        this.bits = 32 - Integer.numberOfLeadingZeros(states - 1);
+
+        int size = 2 * radius + 1;
+        if (!totalistic && bits * size > MAX_TABLE_BITS) {
+            throw new IllegalArgumentException("General rules are limited to " + MAX_TABLE_BITS + " neighbourhood bits");
+        }
+        BigInteger k = BigInteger.valueOf(states);
+        int outcomes = totalistic ? size * (states - 1) + 1 : k.pow(size).intValueExact();
+        if (code.signum() < 0 || code.compareTo(k.pow(outcomes)) >= 0) {
+            throw new IllegalArgumentException("Rule code must be between 0 and " + states + "^" + outcomes + " - 1");
+        }
+        byte[] digits = digits(code, states, outcomes);
+
+        if (bits * size <= MAX_TABLE_BITS) {
+            table = new byte[1 << (bits * size)];
+            int[] neighborhood = new int[size];
+            for (int v = 0; v < table.length; v++) {
+                boolean valid = true;
+                int sum = 0, index = 0;
+                for (int j = 0; j < size; j++) {
+                    neighborhood[j] = (v >>> (bits * (size - 1 - j))) & ((1 << bits) - 1);
+                    if (neighborhood[j] >= states) valid = false;
+                    sum += neighborhood[j];
+                    index = index * states + neighborhood[j];
+                }
+                if (valid) {
+                    table[v] = digits[totalistic ? sum : index];
+                }
+            }
+            sumTable = null;
+        } else {
+            table = null;
+            sumTable = digits;
+        }
+    }
+
+    public static Rule1D elementary(int rule) {
+        if (rule < 0 || rule > 255) throw new IllegalArgumentException("Elementary rules are between 0 and 255");
+        return general(2, 1, BigInteger.valueOf(rule));
+    }
+
+    // Wolfram numbering: base-k digit i is the new state for the neighbourhood that reads i in base k
+    public static Rule1D general(int states, int radius, BigInteger code) {
+        return new Rule1D(states, radius, false, code);
+    }
+
+    // Wolfram numbering: base-k digit s is the new state when the neighbourhood states sum to s
+    public static Rule1D totalistic(int states, int radius, BigInteger code) {
+        return new Rule1D(states, radius, true, code);
+    }
+
+    // Accepts "110", or options before the code such as "k=3 r=1 t 777" (t for totalistic)
+    public static Rule1D parse(String text) {
+        int states = 2, radius = 1;
+        boolean isTotalistic = false;
+        BigInteger code = null;
+        for (String token : text.trim().split("\\s+")) {
+            String lower = token.toLowerCase();
+            if (lower.startsWith("k=")) {
+                states = Integer.parseInt(lower.substring(2));
+            } else if (lower.startsWith("r=")) {
+                radius = Integer.parseInt(lower.substring(2));
+            } else if (lower.equals("t") || lower.equals("totalistic")) {
+                isTotalistic = true;
+            } else if (code == null) {
+                code = new BigInteger(lower);
+            } else {
+                throw new IllegalArgumentException("Unexpected token: " + token);
+            }
+        }
+        if (code == null) throw new IllegalArgumentException("Missing rule code");
+        return isTotalistic ? totalistic(states, radius, code) : general(states, radius, code);
+    }
+
+    private static byte[] digits(BigInteger code, int states, int count) {
+        byte[] digits = new byte[count];
+        String text = code.toString(states);
+        for (int i = 0; i < text.length(); i++) {
+            digits[i] = (byte) Character.digit(text.charAt(text.length() - 1 - i), states);
+        }
+        return digits;
+    }
+
+    // Cells within `radius` of either end have no full neighbourhood and are held at state 0
+    public void step(byte[] cells, byte[] next) {
+        int length = cells.length;
+        int size = 2 * radius + 1;
+        for (int i = 0; i < Math.min(radius, length); i++) {
+            next[i] = 0;
+            next[length - 1 - i] = 0;
+        }
+        if (length < size) return;
+
+        if (table != null) {
+            int mask = table.length - 1;
+            int code = 0;
+            for (int i = 0; i < size - 1; i++) {
+                code = (code << bits) | cells[i];
+            }
+            for (int i = radius; i < length - radius; i++) {
+                code = ((code << bits) | cells[i + radius]) & mask;
+                next[i] = table[code];
+            }
+        } else {
+            int sum = 0;
+            for (int i = 0; i < size - 1; i++) {
+                sum += cells[i];
+            }
+            for (int i = radius; i < length - radius; i++) {
+                sum += cells[i + radius];
+                next[i] = sumTable[sum];
+                sum -= cells[i - radius];
+            }
+        }
+    }
+
+    public int getStates() {
+        return states;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public boolean isTotalistic() {
+        return totalistic;
+    }
+
+    @Override
+    public String toString() {
+        return "k=" + states + " r=" + radius + (totalistic ? " t " : " ") + code;
+    }
+}
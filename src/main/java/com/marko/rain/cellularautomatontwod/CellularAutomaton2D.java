@@ -1,13 +1,18 @@
 package com.marko.rain.cellularautomatontwod;
 
+import com.marko.rain.recording.FrameRecorder;
+
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Random;
 
 public class CellularAutomaton2D extends JPanel {
     private static final int GRID_SIZE = 50;
     private static final int CELL_SIZE = 10;
     private static final int DELAY = 200;
+    private static final int[] RECORDING_PALETTE = { 0xFFFFFF, 0x000000 };
 
     private int[][] grid;
     private boolean isCaveMode = false;
@@ -15,6 +20,7 @@ public class CellularAutomaton2D extends JPanel {
     private final JLabel ruleLabel;
     private final JLabel generationLabel;
     private int generationCount;
+    private FrameRecorder recorder;
 
     public CellularAutomaton2D(JLabel ruleLabel, JLabel generationLabel) {
         this.ruleLabel = ruleLabel;
@@ -22,12 +28,18 @@ public class CellularAutomaton2D extends JPanel {
         updateRuleLabel();
         updateGenerationLabel();
 
-        grid = new int[GRID_SIZE][GRID_SIZE];
         initializeRandomGrid();
 
         timer = new Timer(DELAY, e -> {
             grid = getNextGeneration();
             generationCount++;
+            if (recorder != null && !recorder.record(generationCount, snapshot()) && recorder.getFailure() != null) {
+                try {
+                    stopRecording();
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, "Could not finish recording: " + ex.getMessage(), "Recording Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
             updateGenerationLabel();
             repaint();
         });
@@ -42,28 +54,43 @@ public class CellularAutomaton2D extends JPanel {
     }
 
     private void updateGenerationLabel() {
-        generationLabel.setText("Generation: " + generationCount);
+        if (recorder != null) {
+            generationLabel.setText("Generation: " + generationCount + " (recording, " + recorder.getDroppedFrames() + " dropped)");
+        } else {
+            generationLabel.setText("Generation: " + generationCount);
+        }
     }
 
     private void initializeRandomGrid() {
-        Random rand = new Random();
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                grid[row][col] = (rand.nextDouble() < 0.45) ? 1 : 0;
-            }
-        }
+        grid = randomGrid(GRID_SIZE, 0.45, new Random());
         generationCount = 0;
         updateGenerationLabel();
     }
 
     private int[][] getNextGeneration() {
-        int[][] newGrid = new int[GRID_SIZE][GRID_SIZE];
+        return nextGeneration(grid, isCaveMode);
+    }
+
+    public static int[][] randomGrid(int size, double density, Random rand) {
+        int[][] grid = new int[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                grid[row][col] = (rand.nextDouble() < density) ? 1 : 0;
+            }
+        }
+        return grid;
+    }
+
+    public static int[][] nextGeneration(int[][] grid, boolean caveMode) {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        int[][] newGrid = new int[rows][cols];
 
-        for (int row = 1; row < GRID_SIZE - 1; row++) {
-            for (int col = 1; col < GRID_SIZE - 1; col++) {
-                int aliveNeighbors = countAliveNeighbors(row, col);
+        for (int row = 1; row < rows - 1; row++) {
+            for (int col = 1; col < cols - 1; col++) {
+                int aliveNeighbors = countAliveNeighbors(grid, row, col);
 
-                if (isCaveMode) { // B678/S2345678
+                if (caveMode) { // B678/S2345678
                     if (grid[row][col] == 1) {
                         newGrid[row][col] = (aliveNeighbors >= 2 && aliveNeighbors <= 8) ? 1 : 0;
                     } else {
@@ -81,7 +108,7 @@ public class CellularAutomaton2D extends JPanel {
         return newGrid;
     }
 
-    private int countAliveNeighbors(int row, int col) {
+    private static int countAliveNeighbors(int[][] grid, int row, int col) {
         int count = 0;
         for (int i = -1; i <= 1; i++) {
             for (int j = -1; j <= 1; j++) {
@@ -124,6 +151,38 @@ public class CellularAutomaton2D extends JPanel {
         repaint();
     }
 
+    public byte[] snapshot() {
+        byte[] cells = new byte[GRID_SIZE * GRID_SIZE];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                cells[row * GRID_SIZE + col] = (byte) grid[row][col];
+            }
+        }
+        return cells;
+    }
+
+    public void startRecording() throws IOException {
+        if (recorder == null) {
+            recorder = new FrameRecorder(Paths.get("life-" + System.currentTimeMillis() + ".carf"), GRID_SIZE, GRID_SIZE, RECORDING_PALETTE);
+            recorder.record(generationCount, snapshot());
+        }
+    }
+
+    // Waits for the recorder to finish the file; listeners on "recording" see it stop
+    public void stopRecording() throws IOException {
+        if (recorder != null) {
+            FrameRecorder finished = recorder;
+            recorder = null;
+            updateGenerationLabel();
+            firePropertyChange("recording", true, false);
+            try {
+                finished.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     public void toggleRuleSet() {
         isCaveMode = !isCaveMode;
         updateRuleLabel();
@@ -146,17 +205,36 @@ public class CellularAutomaton2D extends JPanel {
         JButton stopButton = new JButton("Stop");
         JButton resetButton = new JButton("Reset");
         JButton toggleRuleButton = new JButton("Toggle Rules");
+        JToggleButton recordButton = new JToggleButton("Record");
 
         startButton.addActionListener(e -> panel.startSimulation());
         stopButton.addActionListener(e -> panel.stopSimulation());
         resetButton.addActionListener(e -> panel.resetGrid());
         toggleRuleButton.addActionListener(e -> panel.toggleRuleSet());
+        recordButton.addActionListener(e -> {
+            if (recordButton.isSelected()) {
+                try {
+                    panel.startRecording();
+                } catch (IOException ex) {
+                    recordButton.setSelected(false);
+                    JOptionPane.showMessageDialog(frame, "Could not start recording: " + ex.getMessage(), "Recording Error", JOptionPane.ERROR_MESSAGE);
+                }
+            } else {
+                try {
+                    panel.stopRecording();
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(frame, "Could not finish recording: " + ex.getMessage(), "Recording Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        panel.addPropertyChangeListener("recording", e -> recordButton.setSelected(false));
 
         JPanel controlPanel = new JPanel();
         controlPanel.add(startButton);
         controlPanel.add(stopButton);
         controlPanel.add(resetButton);
         controlPanel.add(toggleRuleButton);
+        controlPanel.add(recordButton);
 
         JPanel infoPanel = new JPanel(new GridLayout(2, 1));
         infoPanel.add(ruleLabel);
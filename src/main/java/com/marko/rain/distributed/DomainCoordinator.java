@@ -0,0 +1,106 @@
+package com.marko.rain.distributed;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class DomainCoordinator {
+    private final List<InetSocketAddress> workers;
+
+    public DomainCoordinator(List<InetSocketAddress> workers) {
+        this.workers = workers;
+    }
+
+    // Scatters the grid across the workers as row strips, runs it and gathers the final grid
+    public int[][] run(int[][] grid, GridRule rule, int generations, int ghost) throws IOException {
+        int height = grid.length;
+        int width = grid[0].length;
+        int[][] result = new int[height][width];
+        SocketChannel[] channels = start(height, width, rule, generations, ghost, Wire.INIT_FROM_STRIP, 0L, 0.0, Wire.RESULT_STRIP, grid);
+        try {
+            for (int w = 0; w < channels.length; w++) {
+                int from = firstRow(w, height), rows = firstRow(w + 1, height) - from;
+                ByteBuffer strip = Wire.readFully(channels[w], ByteBuffer.allocate(rows * width));
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < width; c++) {
+                        result[from + r][c] = strip.get();
+                    }
+                }
+            }
+        } finally {
+            close(channels);
+        }
+        return result;
+    }
+
+    // Workers seed their own strips and only report live-cell counts, so the grid never exists in one JVM
+    public long runSeeded(int height, int width, double density, long seed, GridRule rule, int generations, int ghost) throws IOException {
+        SocketChannel[] channels = start(height, width, rule, generations, ghost, Wire.INIT_RANDOM, seed, density, Wire.RESULT_POPULATION, null);
+        long population = 0;
+        try {
+            for (SocketChannel channel : channels) {
+                population += Wire.readFully(channel, ByteBuffer.allocate(8)).getLong();
+            }
+        } finally {
+            close(channels);
+        }
+        return population;
+    }
+
+    private int firstRow(int worker, int height) {
+        return (int) ((long) height * worker / workers.size());
+    }
+
+    private SocketChannel[] start(int height, int width, GridRule rule, int generations, int ghost,
+                                  int initMode, long seed, double density, int resultMode, int[][] grid) throws IOException {
+        if (ghost < 1) throw new IllegalArgumentException("Ghost zone depth must be at least 1");
+        if (height / workers.size() < ghost) throw new IllegalArgumentException("Every strip must be at least as tall as the ghost zone");
+
+        SocketChannel[] channels = new SocketChannel[workers.size()];
+        try {
+            for (int w = 0; w < channels.length; w++) {
+                int from = firstRow(w, height), rows = firstRow(w + 1, height) - from;
+                channels[w] = SocketChannel.open(workers.get(w));
+                InetSocketAddress lower = w + 1 < channels.length ? workers.get(w + 1) : null;
+                byte[] host = lower != null ? lower.getHostString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+                ByteBuffer setup = ByteBuffer.allocate(1 + 13 * 4 + 8 + 8 + host.length);
+                setup.put(Wire.FROM_COORDINATOR);
+                setup.putInt(rule.birthMask).putInt(rule.survivalMask).putInt(rule.fixedBorder ? 1 : 0);
+                setup.putInt(height).putInt(width).putInt(from).putInt(rows).putInt(ghost).putInt(generations);
+                setup.putInt(initMode).putLong(seed).putDouble(density).putInt(resultMode);
+                setup.putInt(lower != null ? lower.getPort() : -1).putInt(host.length).put(host);
+                setup.flip();
+                Wire.writeFully(channels[w], setup);
+
+                if (initMode == Wire.INIT_FROM_STRIP) {
+                    ByteBuffer strip = ByteBuffer.allocate(rows * width);
+                    for (int r = from; r < from + rows; r++) {
+                        for (int c = 0; c < width; c++) {
+                            strip.put((byte) grid[r][c]);
+                        }
+                    }
+                    strip.flip();
+                    Wire.writeFully(channels[w], strip);
+                }
+            }
+        } catch (IOException e) {
+            close(channels);
+            throw e;
+        }
+        return channels;
+    }
+
+    private static void close(SocketChannel[] channels) {
+        for (SocketChannel channel : channels) {
+            if (channel == null) continue;
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
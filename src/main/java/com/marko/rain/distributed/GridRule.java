@@ -0,0 +1,78 @@
+package com.marko.rain.distributed;
+
+import java.util.Random;
+
+public final class GridRule {
+    // B3/S23, border cells held dead like CellularAutomaton2D
+    public static final GridRule LIFE = new GridRule(1 << 3, (1 << 2) | (1 << 3), true);
+    // B678/S2345678, border cells held dead like CellularAutomaton2D
+    public static final GridRule CAVE = new GridRule(atLeast(6), atLeast(2), true);
+
+    final int birthMask;
+    final int survivalMask;
+    final boolean fixedBorder;
+
+    GridRule(int birthMask, int survivalMask, boolean fixedBorder) {
+        this.birthMask = birthMask;
+        this.survivalMask = survivalMask;
+        this.fixedBorder = fixedBorder;
+    }
+
+    // The smoothing rule of CaveWorld: every cell updates and neighbours outside the grid count as open
+    public static GridRule cave(int birthLimit, int survivalLimit) {
+        return new GridRule(atLeast(birthLimit), atLeast(survivalLimit), false);
+    }
+
+    private static int atLeast(int limit) {
+        return 0x1FF & ~((1 << Math.max(0, limit)) - 1);
+    }
+
+    int next(int alive, int neighbors) {
+        int mask = alive != 0 ? survivalMask : birthMask;
+        return (mask >>> neighbors) & 1;
+    }
+
+    // Single-process reference step
+    public int[][] step(int[][] grid) {
+        int height = grid.length;
+        int width = grid[0].length;
+        int[][] next = new int[height][width];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                if (fixedBorder && (r == 0 || r == height - 1 || c == 0 || c == width - 1)) continue;
+                int neighbors = 0;
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        if (dr == 0 && dc == 0) continue;
+                        int rr = r + dr, cc = c + dc;
+                        if (rr >= 0 && rr < height && cc >= 0 && cc < width) {
+                            neighbors += grid[rr][cc];
+                        }
+                    }
+                }
+                next[r][c] = next(grid[r][c], neighbors);
+            }
+        }
+        return next;
+    }
+
+    // Each row has its own generator so any worker can build its strip without seeing the others
+    static void randomRow(byte[] cells, int offset, int width, double density, long seed, int globalRow) {
+        Random rand = new Random(seed * 0x9E3779B97F4A7C15L + globalRow);
+        for (int c = 0; c < width; c++) {
+            cells[offset + c] = (byte) (rand.nextDouble() < density ? 1 : 0);
+        }
+    }
+
+    public static int[][] randomGrid(int height, int width, double density, long seed) {
+        byte[] row = new byte[width];
+        int[][] grid = new int[height][width];
+        for (int r = 0; r < height; r++) {
+            randomRow(row, 0, width, density, seed, r);
+            for (int c = 0; c < width; c++) {
+                grid[r][c] = row[c];
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,87 @@
+package com.marko.rain.distributed;
+
+import com.marko.rain.cellularautomatontwod.CellularAutomaton2D;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Starts StripWorker JVMs on localhost with the current classpath
+public class LocalCluster implements AutoCloseable {
+    private final List<Process> processes = new ArrayList<>();
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+    public LocalCluster(int workers, String... jvmOptions) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        try {
+            for (int i = 0; i < workers; i++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(Arrays.asList(jvmOptions));
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(StripWorker.class.getName());
+                command.add("0");
+                Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                processes.add(process);
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String line = reader.readLine();
+                if (line == null || !line.startsWith("LISTENING ")) throw new IOException("Worker " + i + " failed to start");
+                addresses.add(new InetSocketAddress("localhost", Integer.parseInt(line.substring("LISTENING ".length()))));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public List<InetSocketAddress> getAddresses() {
+        return addresses;
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            process.destroy();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        try (LocalCluster cluster = new LocalCluster(workers)) {
+            DomainCoordinator coordinator = new DomainCoordinator(cluster.getAddresses());
+
+            int[][] life = GridRule.randomGrid(240, 320, 0.35, 7L);
+            int[][] expected = life;
+            for (int g = 0; g < 100; g++) {
+                expected = CellularAutomaton2D.nextGeneration(expected, false);
+            }
+            for (int ghost : new int[]{ 1, 4, 16 }) {
+                long start = System.nanoTime();
+                int[][] actual = coordinator.run(life, GridRule.LIFE, 100, ghost);
+                System.out.printf("Life 240x320, 100 generations, ghost %d: %s (%d ms)%n",
+                        ghost, Arrays.deepEquals(expected, actual) ? "matches" : "MISMATCH", (System.nanoTime() - start) / 1_000_000);
+            }
+
+            GridRule caveRule = GridRule.cave(6, 2);
+            int[][] cave = GridRule.randomGrid(240, 320, 0.45, 11L);
+            int[][] expectedCave = cave;
+            for (int g = 0; g < 5; g++) {
+                expectedCave = caveRule.step(expectedCave);
+            }
+            int[][] actualCave = coordinator.run(cave, caveRule, 5, 2);
+            System.out.println("Cave smoothing 240x320, 5 passes, ghost 2: " + (Arrays.deepEquals(expectedCave, actualCave) ? "matches" : "MISMATCH"));
+
+            long start = System.nanoTime();
+            long population = coordinator.runSeeded(4000, 4000, 0.35, 3L, GridRule.LIFE, 50, 8);
+            System.out.printf("Seeded Life 4000x4000, 50 generations: %d alive (%d ms)%n", population, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.marko.rain.distributed;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Owns a horizontal strip of the grid plus `ghost` rows above and below it. Neighbouring workers
+ * swap `ghost` boundary rows, after which the strip can advance `ghost` generations locally: each
+ * generation the valid ghost region shrinks by one row on each side until the next exchange.
+ */
+public class StripWorker {
+    private static final long CONNECT_RETRY_MILLIS = 20;
+    private static final long CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    private final ServerSocketChannel server;
+
+    private GridRule rule;
+    private int height;
+    private int width;
+    private int startRow;
+    private int rows;
+    private int ghost;
+    private int generations;
+    private int resultMode;
+    private byte[] current;
+    private byte[] next;
+
+    public StripWorker(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", port));
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public void serve() throws IOException {
+        while (true) {
+            try {
+                runJob();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void runJob() throws IOException {
+        SocketChannel coordinator = null;
+        SocketChannel upper = null;
+        SocketChannel lower = null;
+        try {
+            boolean needUpper = true;
+            while (coordinator == null || (needUpper && upper == null)) {
+                SocketChannel channel = server.accept();
+                byte role = Wire.readFully(channel, ByteBuffer.allocate(1)).get();
+                if (role == Wire.FROM_COORDINATOR) {
+                    coordinator = channel;
+                    lower = readSetup(coordinator);
+                    needUpper = startRow > 0;
+                } else {
+                    upper = channel;
+                }
+            }
+
+            long population = runGenerations(upper, lower);
+
+            ByteBuffer result;
+            if (resultMode == Wire.RESULT_STRIP) {
+                result = ByteBuffer.wrap(current, ghost * width, rows * width);
+            } else {
+                result = ByteBuffer.allocate(8).putLong(0, population);
+            }
+            Wire.writeFully(coordinator, result);
+        } finally {
+            if (coordinator != null) coordinator.close();
+            if (upper != null) upper.close();
+            if (lower != null) lower.close();
+        }
+    }
+
+    private SocketChannel readSetup(SocketChannel coordinator) throws IOException {
+        ByteBuffer header = Wire.readFully(coordinator, ByteBuffer.allocate(13 * 4 + 8 + 8));
+        rule = new GridRule(header.getInt(), header.getInt(), header.getInt() != 0);
+        height = header.getInt();
+        width = header.getInt();
+        startRow = header.getInt();
+        rows = header.getInt();
+        ghost = header.getInt();
+        generations = header.getInt();
+        int initMode = header.getInt();
+        long seed = header.getLong();
+        double density = header.getDouble();
+        resultMode = header.getInt();
+        int lowerPort = header.getInt();
+        int hostLength = header.getInt();
+        String lowerHost = StandardCharsets.UTF_8.decode(Wire.readFully(coordinator, ByteBuffer.allocate(hostLength))).toString();
+
+        current = new byte[(rows + 2 * ghost) * width];
+        next = new byte[current.length];
+        if (initMode == Wire.INIT_FROM_STRIP) {
+            Wire.readFully(coordinator, ByteBuffer.wrap(current, ghost * width, rows * width));
+        } else {
+            for (int r = 0; r < rows; r++) {
+                GridRule.randomRow(current, (ghost + r) * width, width, density, seed, startRow + r);
+            }
+        }
+
+        if (lowerPort < 0) return null;
+        SocketChannel lower = connect(new InetSocketAddress(lowerHost, lowerPort));
+        Wire.writeFully(lower, ByteBuffer.wrap(new byte[]{ Wire.FROM_UPPER_NEIGHBOR }));
+        return lower;
+    }
+
+    private static SocketChannel connect(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return SocketChannel.open(address);
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) throw e;
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private long runGenerations(SocketChannel upper, SocketChannel lower) throws IOException {
+        try (Selector selector = Selector.open()) {
+            if (upper != null) upper.configureBlocking(false);
+            if (lower != null) lower.configureBlocking(false);
+            int remaining = generations;
+            while (remaining > 0) {
+                exchange(selector, upper, lower);
+                int steps = Math.min(ghost, remaining);
+                for (int s = 1; s <= steps; s++) {
+                    step(s);
+                }
+                remaining -= steps;
+            }
+        }
+        long population = 0;
+        for (int i = ghost * width; i < (ghost + rows) * width; i++) {
+            population += current[i];
+        }
+        return population;
+    }
+
+    private void exchange(Selector selector, SocketChannel upper, SocketChannel lower) throws IOException {
+        int haloBytes = ghost * width;
+        ByteBuffer sendUp = ByteBuffer.wrap(current, ghost * width, haloBytes);
+        ByteBuffer receiveUp = ByteBuffer.wrap(current, 0, haloBytes);
+        ByteBuffer sendDown = ByteBuffer.wrap(current, rows * width, haloBytes);
+        ByteBuffer receiveDown = ByteBuffer.wrap(current, (rows + ghost) * width, haloBytes);
+
+        // Both directions are pumped through one selector so neither neighbour can stall the other
+        if (upper != null) upper.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, new ByteBuffer[]{ sendUp, receiveUp });
+        if (lower != null) lower.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, new ByteBuffer[]{ sendDown, receiveDown });
+        int pending = (upper != null ? 1 : 0) + (lower != null ? 1 : 0);
+        while (pending > 0) {
+            selector.select();
+            for (SelectionKey key : selector.selectedKeys()) {
+                SocketChannel channel = (SocketChannel) key.channel();
+                ByteBuffer[] buffers = (ByteBuffer[]) key.attachment();
+                if (key.isWritable() && buffers[0].hasRemaining()) {
+                    channel.write(buffers[0]);
+                }
+                if (key.isReadable() && buffers[1].hasRemaining()) {
+                    if (channel.read(buffers[1]) < 0) throw new IOException("Neighbour closed during halo exchange");
+                }
+                int interest = (buffers[0].hasRemaining() ? SelectionKey.OP_WRITE : 0) | (buffers[1].hasRemaining() ? SelectionKey.OP_READ : 0);
+                if (interest == 0) {
+                    key.cancel();
+                    pending--;
+                } else {
+                    key.interestOps(interest);
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+        selector.selectNow(); // flush cancelled keys so the channels can be registered again
+    }
+
+    private void step(int s) {
+        int totalRows = rows + 2 * ghost;
+        for (int lr = s; lr < totalRows - s; lr++) {
+            int globalRow = startRow - ghost + lr;
+            if (globalRow < 0 || globalRow >= height) continue;
+            int base = lr * width;
+            for (int c = 0; c < width; c++) {
+                if (rule.fixedBorder && (globalRow == 0 || globalRow == height - 1 || c == 0 || c == width - 1)) {
+                    next[base + c] = 0;
+                    continue;
+                }
+                int neighbors = 0;
+                for (int dr = -width; dr <= width; dr += width) {
+                    int row = base + dr;
+                    if (c > 0) neighbors += current[row + c - 1];
+                    if (dr != 0) neighbors += current[row + c];
+                    if (c < width - 1) neighbors += current[row + c + 1];
+                }
+                next[base + c] = (byte) rule.next(current[base + c], neighbors);
+            }
+        }
+        byte[] tmp = current;
+        current = next;
+        next = tmp;
+    }
+
+    public static void main(String[] args) throws IOException {
+        StripWorker worker = new StripWorker(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+        System.out.println("LISTENING " + worker.getPort());
+        System.out.flush();
+        worker.serve();
+    }
+}
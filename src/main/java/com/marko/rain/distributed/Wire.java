@@ -0,0 +1,33 @@
+package com.marko.rain.distributed;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+final class Wire {
+    static final byte FROM_COORDINATOR = 0;
+    static final byte FROM_UPPER_NEIGHBOR = 1;
+
+    static final int INIT_FROM_STRIP = 0;
+    static final int INIT_RANDOM = 1;
+    static final int RESULT_STRIP = 0;
+    static final int RESULT_POPULATION = 1;
+
+    private Wire() {
+    }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static ByteBuffer readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Connection closed by peer");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
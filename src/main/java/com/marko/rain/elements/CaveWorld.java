@@ -0,0 +1,572 @@
+package com.marko.rain.elements;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class CaveWorld {
+    private static final int SMOKE_LIFESPAN = 20;
+
+    private final int height;
+    private final int width;
+    private final Random rand;
+
+    private Element[][] grid;
+    private double[][] waterVolume;
+    private int[][] smokeLife;
+    private boolean[][] darkSmoke;
+    private int[][] updatedAt;
+    private final int[] ignited;
+    private int ignitedCount;
+    private int generationCount = 0;
+    private boolean levelWater = false;
+    private final WaterLeveler waterLeveler;
+    private final ElementBehavior[] behaviors = new ElementBehavior[Element.values().length];
+
+    public CaveWorld(int height, int width, Random rand) {
+        this.height = height;
+        this.width = width;
+        this.rand = rand;
+        grid = new Element[height][width];
+        waterVolume = new double[height][width];
+        smokeLife = new int[height][width];
+        darkSmoke = new boolean[height][width];
+        updatedAt = new int[height][width];
+        ignited = new int[height * width];
+        waterLeveler = new WaterLeveler(height, width);
+
+        register(Element.SAND, (world, row, col) -> updateSand(row, col));
+        register(Element.WATER, (world, row, col) -> updateWater(row, col));
+        register(Element.WOOD, (world, row, col) -> updateWood(row, col));
+        register(Element.FIRE, (world, row, col) -> updateFire(row, col));
+        register(Element.SMOKE, (world, row, col) -> updateSmoke(row, col));
+    }
+
+    public void register(Element element, ElementBehavior behavior) {
+        behaviors[element.ordinal()] = behavior;
+    }
+
+    public void initializeGrid(double wallProbability, int birthLimit, int survivalLimit, int smoothingPasses) {
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                grid[r][c] = (rand.nextDouble() < wallProbability) ? Element.WALL : Element.EMPTY;
+                waterVolume[r][c] = 0.0;
+                smokeLife[r][c] = 0;
+                darkSmoke[r][c] = false;
+                updatedAt[r][c] = 0;
+            }
+        }
+        for (int c = 0; c < width; c++) {
+            grid[0][c] = Element.WALL;
+            grid[height - 1][c] = Element.WALL;
+        }
+        for (int r = 0; r < height; r++) {
+            grid[r][0] = Element.WALL;
+            grid[r][width - 1] = Element.WALL;
+        }
+        for (int i = 0; i < smoothingPasses; i++) {
+            applyCellularAutomaton(birthLimit, survivalLimit);
+        }
+        generationCount = 0;
+        waterLeveler.reset();
+    }
+
+    // One bottom-up sweep; cells written by a behavior this tick are stamped so nothing moves twice
+    public void tick() {
+        generationCount++;
+        ignitedCount = 0;
+        for (int row = height - 2; row >= 1; row--) {
+            for (int col = 1; col < width - 1; col++) {
+                if (updatedAt[row][col] == generationCount) continue;
+                ElementBehavior behavior = behaviors[grid[row][col].ordinal()];
+                if (behavior != null) {
+                    behavior.update(this, row, col);
+                }
+            }
+        }
+        // Wood lit this tick burns straight away, bottom-up, as it did when moveFire ran after moveWood
+        Arrays.sort(ignited, 0, ignitedCount);
+        for (int k = 0; k < ignitedCount; k++) {
+            int row = height - 1 - ignited[k] / width, col = ignited[k] % width;
+            if (grid[row][col] == Element.FIRE) {
+                burn(row, col);
+            }
+        }
+        if (levelWater) {
+            waterLeveler.level(grid, waterVolume);
+        }
+    }
+
+    public boolean place(int row, int col, Element element) {
+        if (row < 0 || row >= height || col < 0 || col >= width || grid[row][col] != Element.EMPTY) return false;
+        grid[row][col] = element;
+        markDirty(row, col);
+        if (element == Element.WATER) {
+            waterVolume[row][col] = 1.0;
+        } else if (element == Element.SMOKE) {
+            smokeLife[row][col] = SMOKE_LIFESPAN;
+            darkSmoke[row][col] = false;
+        }
+        return true;
+    }
+
+    public void setLevelWater(boolean levelWater) {
+        this.levelWater = levelWater;
+        waterLeveler.reset();
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getGenerationCount() {
+        return generationCount;
+    }
+
+    public byte[] snapshot() {
+        byte[] cells = new byte[height * width];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                cells[r * width + c] = (byte) grid[r][c].ordinal();
+            }
+        }
+        return cells;
+    }
+
+    public Element getElement(int row, int col) {
+        return grid[row][col];
+    }
+
+    public void set(int row, int col, Element element) {
+        grid[row][col] = element;
+        updatedAt[row][col] = generationCount;
+        markDirty(row, col);
+    }
+
+    private void markDirty(int row, int col) {
+        if (levelWater) {
+            waterLeveler.markDirty(row, col);
+        }
+    }
+
+    public void setWaterVolume(int row, int col, double volume) {
+        waterVolume[row][col] = volume;
+        markDirty(row, col);
+    }
+
+    public int getSmokeLife(int row, int col) {
+        return smokeLife[row][col];
+    }
+
+    public void setSmokeLife(int row, int col, int life) {
+        smokeLife[row][col] = life;
+    }
+
+    public void setDarkSmoke(int row, int col, boolean dark) {
+        darkSmoke[row][col] = dark;
+    }
+
+    public Random getRandom() {
+        return rand;
+    }
+
+    public double getWaterVolume(int row, int col) {
+        return waterVolume[row][col];
+    }
+
+    public boolean isDarkSmoke(int row, int col) {
+        return darkSmoke[row][col];
+    }
+
+    private void applyCellularAutomaton(int birthLimit, int survivalLimit) {
+        Element[][] newGrid = new Element[height][width];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                int neighbors = countWallNeighbors(r, c);
+                if (grid[r][c] == Element.WALL) {
+                    newGrid[r][c] = (neighbors >= survivalLimit) ? Element.WALL : Element.EMPTY;
+                } else {
+                    newGrid[r][c] = (neighbors >= birthLimit) ? Element.WALL : Element.EMPTY;
+                }
+            }
+        }
+        grid = newGrid;
+    }
+
+    private int countWallNeighbors(int r, int c) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) continue;
+                int rr = r + dr, cc = c + dc;
+                if (rr >= 0 && rr < height && cc >= 0 && cc < width && grid[rr][cc] == Element.WALL) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void updateSand(int row, int col) {
+        if (grid[row + 1][col] == Element.WATER) {  // displace water
+            set(row + 1, col, Element.SAND);
+            set(row, col, Element.WATER);
+            waterVolume[row][col] = waterVolume[row + 1][col];
+            waterVolume[row + 1][col] = 0.0;
+        } else if (grid[row + 1][col] == Element.EMPTY) {  // normal falling
+            set(row + 1, col, Element.SAND);
+            set(row, col, Element.EMPTY);
+        } else {  // diagonal movement
+            boolean leftEmpty = (grid[row + 1][col - 1] == Element.EMPTY);
+            boolean rightEmpty = (grid[row + 1][col + 1] == Element.EMPTY);
+            if (leftEmpty && rightEmpty) {
+                if (rand.nextBoolean()) {
+                    set(row + 1, col - 1, Element.SAND);
+                } else {
+                    set(row + 1, col + 1, Element.SAND);
+                }
+                set(row, col, Element.EMPTY);
+            } else if (leftEmpty) {
+                set(row + 1, col - 1, Element.SAND);
+                set(row, col, Element.EMPTY);
+            } else if (rightEmpty) {
+                set(row + 1, col + 1, Element.SAND);
+                set(row, col, Element.EMPTY);
+            }
+        }
+    }
+
+    // This version is like snow... It doesnt have that horizontal water leveling
+//    private void simulateWater() {
+//        double[][] newVol = new double[height][width];
+//        for (int r = 1; r < height - 1; r++) {
+//            for (int c = 1; c < width - 1; c++) {
+//                newVol[r][c] = waterVolume[r][c];
+//            }
+//        }
+//        for (int row = height - 2; row >= 1; row--) {
+//            for (int col = 1; col < width - 1; col++) {
+//                double vol = newVol[row][col];
+//                if (vol <= 0) continue;
+//                if ((grid[row + 1][col] == Element.EMPTY || grid[row + 1][col] == Element.WATER)) {
+//                    double capacityBelow = 1.0 - newVol[row + 1][col];
+//                    if (capacityBelow > 0) {
+//                        double moveDown = Math.min(vol, capacityBelow);
+//                        newVol[row + 1][col] += moveDown;
+//                        newVol[row][col] -= moveDown;
+//                        vol -= moveDown;
+//                    }
+//                }
+//                vol = newVol[row][col];
+//                if (vol > 0) {
+//                    boolean downBlockedOrFull = false;
+//                    if (!(grid[row + 1][col] == Element.EMPTY || grid[row + 1][col] == Element.WATER)) {
+//                        downBlockedOrFull = true;
+//                    } else {
+//                        if (newVol[row + 1][col] >= 1.0) {
+//                            downBlockedOrFull = true;
+//                        }
+//                    }
+//                    if (downBlockedOrFull) {
+//                        boolean leftOpen = (grid[row + 1][col - 1] == Element.EMPTY || grid[row + 1][col - 1] == Element.WATER);
+//                        boolean rightOpen = (grid[row + 1][col + 1] == Element.EMPTY || grid[row + 1][col + 1] == Element.WATER);
+//                        if (leftOpen && rightOpen) {
+//                            double half = vol / 2.0;
+//                            double capLeft = 1.0 - newVol[row + 1][col - 1];
+//                            double moveLeft = Math.min(half, Math.max(capLeft, 0));
+//                            double capRight = 1.0 - newVol[row + 1][col + 1];
+//                            double moveRight = Math.min(half, Math.max(capRight, 0));
+//                            newVol[row + 1][col - 1] += moveLeft;
+//                            newVol[row + 1][col + 1] += moveRight;
+//                            double movedTotal = moveLeft + moveRight;
+//                            newVol[row][col] -= movedTotal;
+//                        } else if (leftOpen) {
+//                            double capLeft = 1.0 - newVol[row + 1][col - 1];
+//                            double moveLeft = Math.min(vol, Math.max(capLeft, 0));
+//                            newVol[row + 1][col - 1] += moveLeft;
+//                            newVol[row][col] -= moveLeft;
+//                        } else if (rightOpen) {
+//                            double capRight = 1.0 - newVol[row + 1][col + 1];
+//                            double moveRight = Math.min(vol, Math.max(capRight, 0));
+//                            newVol[row + 1][col + 1] += moveRight;
+//                            newVol[row][col] -= moveRight;
+//                        }
+//                    }
+//                }
+//                vol = newVol[row][col];
+//                if (vol > 1.0) {
+//                    double excess = vol - 1.0;
+//                    newVol[row][col] = 1.0;
+//                    if (grid[row - 1][col] == Element.EMPTY || grid[row - 1][col] == Element.WATER) {
+//                        double capUp = 1.0 - newVol[row - 1][col];
+//                        if (capUp > 0) {
+//                            double moveUp = Math.min(excess, capUp);
+//                            newVol[row - 1][col] += moveUp;
+//                        }
+//                    }
+//                }
+//            }
+//        }
+//        for (int r = 1; r < height - 1; r++) {
+//            for (int c = 1; c < width - 1; c++) {
+//                waterVolume[r][c] = newVol[r][c];
+//                if (waterVolume[r][c] > 0) {
+//                    grid[r][c] = Element.WATER;
+//                } else if (grid[r][c] == Element.WATER) {
+//                    grid[r][c] = Element.EMPTY;
+//                }
+//            }
+//        }
+//    }
+
+    private void updateWater(int row, int col) {
+        if (levelWater) return;
+        double vol = waterVolume[row][col];
+        if (vol <= 0) {
+            grid[row][col] = Element.EMPTY;
+            markDirty(row, col);
+            return;
+        }
+
+        // Flow down
+        if (grid[row + 1][col] == Element.EMPTY || grid[row + 1][col] == Element.WATER) {
+            double capacityBelow = 1.0 - waterVolume[row + 1][col];
+            if (capacityBelow > 0) {
+                double moveDown = Math.min(vol, capacityBelow);
+                pour(row + 1, col, moveDown);
+                waterVolume[row][col] -= moveDown;
+            }
+        }
+
+        vol = waterVolume[row][col];
+
+        // Flow diagonally + split
+        boolean downBlockedOrFull = !(grid[row + 1][col] == Element.EMPTY || grid[row + 1][col] == Element.WATER)
+                || waterVolume[row + 1][col] >= 1.0;
+
+        if (vol > 0 && downBlockedOrFull) {
+            boolean leftOpen = (grid[row + 1][col - 1] == Element.EMPTY || grid[row + 1][col - 1] == Element.WATER);
+            boolean rightOpen = (grid[row + 1][col + 1] == Element.EMPTY || grid[row + 1][col + 1] == Element.WATER);
+
+            if (leftOpen && rightOpen) {
+                double half = vol / 2.0;
+
+                double capLeft = 1.0 - waterVolume[row + 1][col - 1];
+                double moveLeft = Math.min(half, Math.max(capLeft, 0));
+
+                double capRight = 1.0 - waterVolume[row + 1][col + 1];
+                double moveRight = Math.min(half, Math.max(capRight, 0));
+
+                pour(row + 1, col - 1, moveLeft);
+                pour(row + 1, col + 1, moveRight);
+                waterVolume[row][col] -= (moveLeft + moveRight);
+            } else if (leftOpen) {
+                double capLeft = 1.0 - waterVolume[row + 1][col - 1];
+                double moveLeft = Math.min(vol, Math.max(capLeft, 0));
+                pour(row + 1, col - 1, moveLeft);
+                waterVolume[row][col] -= moveLeft;
+            } else if (rightOpen) {
+                double capRight = 1.0 - waterVolume[row + 1][col + 1];
+                double moveRight = Math.min(vol, Math.max(capRight, 0));
+                pour(row + 1, col + 1, moveRight);
+                waterVolume[row][col] -= moveRight;
+            }
+        }
+
+        vol = waterVolume[row][col];
+
+        // Horizontala
+        if (vol > 0) {
+            boolean leftSame = grid[row][col - 1] == Element.EMPTY || grid[row][col - 1] == Element.WATER;
+            boolean rightSame = grid[row][col + 1] == Element.EMPTY || grid[row][col + 1] == Element.WATER;
+
+            if (leftSame && rightSame) {
+                double half = vol / 2.0;
+
+                double capLeft = 1.0 - waterVolume[row][col - 1];
+                double moveLeft = Math.min(half, Math.max(capLeft, 0));
+
+                double capRight = 1.0 - waterVolume[row][col + 1];
+                double moveRight = Math.min(half, Math.max(capRight, 0));
+
+                pour(row, col - 1, moveLeft);
+                pour(row, col + 1, moveRight);
+                waterVolume[row][col] -= (moveLeft + moveRight);
+            } else if (leftSame) {
+                double capLeft = 1.0 - waterVolume[row][col - 1];
+                double moveLeft = Math.min(vol, Math.max(capLeft, 0));
+                pour(row, col - 1, moveLeft);
+                waterVolume[row][col] -= moveLeft;
+            } else if (rightSame) {
+                double capRight = 1.0 - waterVolume[row][col + 1];
+                double moveRight = Math.min(vol, Math.max(capRight, 0));
+                pour(row, col + 1, moveRight);
+                waterVolume[row][col] -= moveRight;
+            }
+        }
+
+        vol = waterVolume[row][col];
+        // Overfill
+        if (vol > 1.0) {
+            double excess = vol - 1.0;
+            waterVolume[row][col] = 1.0;
+
+            if (grid[row - 1][col] == Element.EMPTY || grid[row - 1][col] == Element.WATER) {
+                double capUp = 1.0 - waterVolume[row - 1][col];
+                if (capUp > 0) {
+                    double moveUp = Math.min(excess, capUp);
+                    pour(row - 1, col, moveUp);
+                }
+            }
+        }
+
+        if (waterVolume[row][col] <= 0) {
+            grid[row][col] = Element.EMPTY;
+            markDirty(row, col);
+        }
+    }
+
+    private void pour(int row, int col, double amount) {
+        waterVolume[row][col] += amount;
+        if (waterVolume[row][col] > 0) {
+            grid[row][col] = Element.WATER;
+            markDirty(row, col);
+        }
+    }
+
+    // Wood floating up keeps going through the water above it, as the bottom-up moveWood pass let it
+    private void updateWood(int row, int col) {
+        boolean rose;
+        do {
+            rose = false;
+            if (grid[row + 1][col] == Element.EMPTY) {
+                set(row + 1, col, Element.WOOD);
+                set(row, col, Element.EMPTY);
+            }
+            else if (grid[row - 1][col] == Element.WATER) {
+                set(row - 1, col, Element.WOOD);
+                set(row, col, Element.WATER);
+                double tmpVol = waterVolume[row - 1][col];
+                waterVolume[row - 1][col] = waterVolume[row][col];
+                waterVolume[row][col] = tmpVol;
+                rose = true;
+            }
+            catchFire(row, col);
+            row--;
+        } while (rose && row >= 1);
+    }
+
+    private void catchFire(int row, int col) {
+        boolean fireNearby = false;
+        for (int dr = -1; dr <= 1 && !fireNearby; dr++) {
+            for (int dc = -1; dc <= 1 && !fireNearby; dc++) {
+                int nr = row + dr, nc = col + dc;
+                if (nr >= 0 && nr < height && nc >= 0 && nc < width) {
+                    if (grid[nr][nc] == Element.FIRE) {
+                        fireNearby = true;
+                    }
+                }
+            }
+        }
+        if (fireNearby) {
+            ignite(row, col);
+        }
+    }
+
+    private void updateFire(int row, int col) {
+        // Wood above or to the right runs later in the sweep, after this fire has moved, so light it now
+        igniteNeighbors(row, col);
+        burn(row, col);
+    }
+
+    private void burn(int row, int col) {
+        int[][] candidates = { { row + 1, col - 1 }, { row + 1, col }, { row + 1, col + 1 } };
+        for (int i = 0; i < candidates.length; i++) {
+            int j = rand.nextInt(candidates.length);
+            int[] tmp = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = tmp;
+        }
+        boolean moved = false;
+        for (int[] cand : candidates) {
+            int nr = cand[0], nc = cand[1];
+            if (grid[nr][nc] == Element.EMPTY) {
+                set(nr, nc, Element.FIRE);
+                set(row, col, Element.EMPTY);
+                moved = true;
+                break;
+            } else if (grid[nr][nc] == Element.WOOD) {
+                set(nr, nc, Element.FIRE);
+                set(row, col, Element.SMOKE);
+                smokeLife[row][col] = SMOKE_LIFESPAN;
+                darkSmoke[row][col] = true;
+                moved = true;
+                break;
+            }
+        }
+        if (!moved) {
+            set(row, col, Element.SMOKE);
+            smokeLife[row][col] = SMOKE_LIFESPAN;
+            darkSmoke[row][col] = false;
+        }
+    }
+
+    private void igniteNeighbors(int row, int col) {
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                int nr = row + dr, nc = col + dc;
+                if (nr >= 1 && nr < height - 1 && nc >= 1 && nc < width - 1 && grid[nr][nc] == Element.WOOD) {
+                    ignite(nr, nc);
+                }
+            }
+        }
+    }
+
+    // Keyed so that sorting puts the bottom row first, left to right
+    private void ignite(int row, int col) {
+        set(row, col, Element.FIRE);
+        ignited[ignitedCount++] = (height - 1 - row) * width + col;
+    }
+
+    private void updateSmoke(int row, int col) {
+        smokeLife[row][col]--;
+        if (smokeLife[row][col] <= 0) {
+            set(row, col, Element.EMPTY);
+            return;
+        }
+        if (grid[row - 1][col] == Element.EMPTY) {
+            set(row - 1, col, Element.SMOKE);
+            smokeLife[row - 1][col] = smokeLife[row][col];
+            darkSmoke[row - 1][col] = darkSmoke[row][col];
+            set(row, col, Element.EMPTY);
+        } else {
+            boolean leftEmpty = (grid[row][col - 1] == Element.EMPTY);
+            boolean rightEmpty = (grid[row][col + 1] == Element.EMPTY);
+            if (leftEmpty && rightEmpty) {
+                if (rand.nextBoolean()) {
+                    set(row, col - 1, Element.SMOKE);
+                    smokeLife[row][col - 1] = smokeLife[row][col];
+                    darkSmoke[row][col - 1] = darkSmoke[row][col];
+                } else {
+                    set(row, col + 1, Element.SMOKE);
+                    smokeLife[row][col + 1] = smokeLife[row][col];
+                    darkSmoke[row][col + 1] = darkSmoke[row][col];
+                }
+                set(row, col, Element.EMPTY);
+            } else if (leftEmpty) {
+                set(row, col - 1, Element.SMOKE);
+                smokeLife[row][col - 1] = smokeLife[row][col];
+                darkSmoke[row][col - 1] = darkSmoke[row][col];
+                set(row, col, Element.EMPTY);
+            } else if (rightEmpty) {
+                set(row, col + 1, Element.SMOKE);
+                smokeLife[row][col + 1] = smokeLife[row][col];
+                darkSmoke[row][col + 1] = darkSmoke[row][col];
+                set(row, col, Element.EMPTY);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.marko.rain.elements;
+
+import java.util.Random;
+
+// Headless sanity checks for CaveWorld rules; exits with a non-zero status on the first failure
+public class CaveWorldCheck {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        checkWoodStackBurnsFromBelow();
+        checkWoodRightOfFireCatches();
+        checkLitWoodBurnsInSameTick();
+        checkWoodFloatsUpInOneTick();
+        checkWaterLevelsInOneTick();
+        checkSmallColumnStaysWithinOneUnit(2);
+        checkSmallColumnStaysWithinOneUnit(3);
+        if (failures > 0) {
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    private static CaveWorld emptyWorld() {
+        return emptyWorld(20, 20);
+    }
+
+    private static CaveWorld emptyWorld(int height, int width) {
+        CaveWorld world = new CaveWorld(height, width, new Random(1));
+        world.initializeGrid(0.0, 9, 9, 0);
+        return world;
+    }
+
+    private static void checkWoodStackBurnsFromBelow() {
+        CaveWorld world = emptyWorld();
+        for (int row = 5; row < 10; row++) {
+            world.place(row, 10, Element.WOOD);
+        }
+        world.place(10, 10, Element.FIRE);
+        world.tick();
+        report("wood stack lit from below burns all the way up", count(world, Element.WOOD) == 0);
+    }
+
+    private static void checkWoodRightOfFireCatches() {
+        CaveWorld world = emptyWorld();
+        world.place(18, 5, Element.FIRE);
+        world.place(18, 6, Element.WOOD);
+        world.tick();
+        report("wood to the right of fire catches", count(world, Element.WOOD) == 0);
+    }
+
+    private static void checkLitWoodBurnsInSameTick() {
+        CaveWorld world = emptyWorld();
+        world.place(18, 5, Element.FIRE);
+        world.place(18, 6, Element.WOOD);
+        world.tick();
+        report("wood lit by a fire burns out in the same tick", count(world, Element.FIRE) == 0 && count(world, Element.SMOKE) == 2);
+    }
+
+    private static void checkWoodFloatsUpInOneTick() {
+        CaveWorld world = emptyWorld();
+        for (int row = 10; row < 18; row++) {
+            world.place(row, 10, Element.WATER);
+        }
+        world.place(18, 10, Element.WOOD);
+        world.tick();
+        report("wood under a water column floats to the top in one tick", world.getElement(10, 10) == Element.WOOD);
+    }
+
+    private static void checkWaterLevelsInOneTick() {
+        CaveWorld world = emptyWorld();
+        world.setLevelWater(true);
+        world.tick();
+        for (int row = 10; row < 19; row++) {
+            world.place(row, 9, Element.WATER);
+        }
+        world.tick();
+        boolean level = count(world, Element.WATER) == 18;
+        for (int col = 1; col < 19; col++) {
+            level &= world.getElement(18, col) == Element.WATER && Math.abs(world.getWaterVolume(18, col) - 0.5) < 1e-9;
+        }
+        report("a column of water dropped on the floor levels in one tick", level);
+    }
+
+    private static void checkSmallColumnStaysWithinOneUnit(int cells) {
+        CaveWorld world = emptyWorld(30, 80);
+        world.setLevelWater(true);
+        world.tick();
+        for (int row = 10; row < 10 + cells; row++) {
+            world.place(row, 40, Element.WATER);
+        }
+        for (int t = 0; t < 5; t++) {
+            world.tick();
+        }
+        boolean capped = count(world, Element.WATER) == cells;
+        for (int col = 1; col < 79; col++) {
+            capped &= world.getWaterVolume(28, col) <= 1.0 + 1e-9;
+        }
+        report("a " + cells + "-cell column on a wide floor keeps " + cells + " cells of at most one unit", capped);
+    }
+
+    private static int count(CaveWorld world, Element element) {
+        int count = 0;
+        for (int r = 0; r < world.getHeight(); r++) {
+            for (int c = 0; c < world.getWidth(); c++) {
+                if (world.getElement(r, c) == element) count++;
+            }
+        }
+        return count;
+    }
+
+    private static void report(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+        if (!passed) failures++;
+    }
+}
@@ -0,0 +1,3 @@
+package com.marko.rain.elements;
+
+public enum Element { EMPTY, SAND, WOOD, FIRE, SMOKE, WATER, WALL }
@@ -0,0 +1,6 @@
+package com.marko.rain.elements;
+
+public interface ElementBehavior {
+    // Called once per tick for each interior cell holding the element this behavior is registered for
+    void update(CaveWorld world, int row, int col);
+}
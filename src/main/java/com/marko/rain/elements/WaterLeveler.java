@@ -0,0 +1,359 @@
+package com.marko.rain.elements;
+
+import java.util.Arrays;
+
+class WaterLeveler {
+    private static final double MIN_SPREAD_VOLUME = 0.05;
+
+    private final int height;
+    private final int width;
+
+    // Union-find over flat cell indices, plus a member chain per body (head[root] -> next[...])
+    private final int[] parent;
+    private final int[] head;
+    private final int[] next;
+
+    private final Element[] seen;
+    private final int[] dirty;
+    private final int[] collected;
+    private final int[] collectedMark;
+    private final int[] visited;
+    private final int[] visitedMark;
+    private final int[] pool;
+    private final int[] poolMark;
+    private final int[] bucketHead;
+    private final int[] bucketNext;
+    private final int[] deferMark;
+    private final int[] levelMark;
+    private final int[] spread;
+    private final int[] dirtyMark;
+    private int dirtyCount;
+    private int dirtyEpoch = 1;
+    private int collectedCount;
+    private int stamp;
+    private int solveStamp;
+    private int visitedCount;
+    private boolean primed;
+
+    WaterLeveler(int height, int width) {
+        this.height = height;
+        this.width = width;
+        int size = height * width;
+        parent = new int[size];
+        head = new int[size];
+        next = new int[size];
+        seen = new Element[size];
+        dirty = new int[size];
+        dirtyMark = new int[size];
+        collected = new int[size];
+        collectedMark = new int[size];
+        visited = new int[size];
+        visitedMark = new int[size];
+        pool = new int[size];
+        poolMark = new int[size];
+        bucketHead = new int[height];
+        bucketNext = new int[size];
+        deferMark = new int[size];
+        levelMark = new int[size];
+        spread = new int[width];
+    }
+
+    void reset() {
+        primed = false;
+    }
+
+    // Called by the world for every cell it rewrites; until the first full pass everything is dirty anyway
+    void markDirty(int r, int c) {
+        if (!primed) return;
+        int i = r * width + c;
+        if (dirtyMark[i] == dirtyEpoch) return;
+        dirtyMark[i] = dirtyEpoch;
+        dirty[dirtyCount++] = i;
+    }
+
+    void level(Element[][] grid, double[][] waterVolume) {
+        stamp++;
+        collectedCount = 0;
+
+        // Only bodies touching a cell rewritten since the last tick are re-solved
+        if (!primed) {
+            dirtyCount = height * width;
+            for (int i = 0; i < dirtyCount; i++) {
+                dirty[i] = i;
+            }
+        }
+        for (int k = 0; k < dirtyCount; k++) {
+            int i = dirty[k];
+            int r = i / width, c = i % width;
+            touch(grid, r, c);
+            touch(grid, r - 1, c);
+            touch(grid, r + 1, c);
+            touch(grid, r, c - 1);
+            touch(grid, r, c + 1);
+        }
+        for (int k = 0; k < dirtyCount; k++) {
+            int i = dirty[k];
+            seen[i] = grid[i / width][i % width];
+        }
+        dirtyCount = 0;
+        dirtyEpoch++;
+        primed = true;
+
+        for (int k = 0; k < collectedCount; k++) {
+            int i = collected[k];
+            int r = i / width, c = i % width;
+            join(grid, i, r - 1, c);
+            join(grid, i, r + 1, c);
+            join(grid, i, r, c - 1);
+            join(grid, i, r, c + 1);
+        }
+
+        for (int k = 0; k < collectedCount; k++) {
+            head[collected[k]] = -1;
+        }
+        for (int k = 0; k < collectedCount; k++) {
+            int i = collected[k];
+            int root = find(i);
+            next[i] = head[root];
+            head[root] = i;
+        }
+        for (int k = 0; k < collectedCount; k++) {
+            int i = collected[k];
+            if (parent[i] == i) {
+                solve(grid, waterVolume, i);
+            }
+        }
+    }
+
+    private void touch(Element[][] grid, int r, int c) {
+        if (r < 0 || r >= height || c < 0 || c >= width || grid[r][c] != Element.WATER) return;
+        collect(grid, r * width + c);
+    }
+
+    private void collect(Element[][] grid, int i) {
+        if (collectedMark[i] == stamp) return;
+        if (primed && seen[i] == Element.WATER) {
+            // Pull in the whole body this cell belonged to last tick
+            for (int m = head[find(i)]; m != -1; m = next[m]) {
+                if (collectedMark[m] != stamp && grid[m / width][m % width] == Element.WATER) {
+                    add(m);
+                }
+            }
+        }
+        if (collectedMark[i] != stamp) {
+            add(i);
+        }
+    }
+
+    private void add(int i) {
+        collectedMark[i] = stamp;
+        collected[collectedCount++] = i;
+        parent[i] = i;
+    }
+
+    private void join(Element[][] grid, int i, int r, int c) {
+        if (r < 0 || r >= height || c < 0 || c >= width || grid[r][c] != Element.WATER) return;
+        int j = r * width + c;
+        if (collectedMark[j] != stamp) {
+            collect(grid, j);
+        }
+        int a = find(i), b = find(j);
+        if (a != b) {
+            parent[b] = a;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /*
+     * Pours the water reachable from the body into a pool. Cells are taken deepest first and a cell
+     * with open space below only joins the pool once everything under it has, so water drains into
+     * anything lower before it rises and spills over a lip only when the level reaches it. Cells
+     * join in the order they would be submerged; taking stops once a full level holds the volume.
+     */
+    private void solve(Element[][] grid, double[][] waterVolume, int root) {
+        solveStamp++;
+        Arrays.fill(bucketHead, -1);
+        visitedCount = 0;
+        int deepest = -1;
+        int topRow = height;
+        for (int m = head[root]; m != -1; m = next[m]) {
+            topRow = Math.min(topRow, m / width);
+        }
+        double total = 0.0;
+        for (int m = head[root]; m != -1; m = next[m]) {
+            visitedMark[m] = solveStamp;
+            visited[visitedCount++] = m;
+            total += waterVolume[m / width][m % width];
+            push(m);
+            deepest = Math.max(deepest, m / width);
+        }
+
+        int poolCount = 0;
+        int runStart = 0;
+        int lastRow = -1;
+        while (true) {
+            while (deepest >= 0 && bucketHead[deepest] == -1) deepest--;
+            if (deepest < 0 || (poolCount >= total && deepest != lastRow)) break;
+            int i = bucketHead[deepest];
+            bucketHead[deepest] = bucketNext[i];
+            int r = i / width, c = i % width;
+
+            if (deferMark[i] != solveStamp && isOpen(grid, r + 1, c, topRow) && visitedMark[i + width] != solveStamp) {
+                // Still falling: fill below first and come back to this cell when the level reaches it
+                deferMark[i] = solveStamp;
+                total += visit(grid, waterVolume, i + width);
+                push(i);
+                if (lastRow == r) {
+                    // This level spills here, so the cells already taken on it wait for the lower side too
+                    for (int k = runStart; k < poolCount; k++) {
+                        poolMark[pool[k]] = 0;
+                        deferMark[pool[k]] = solveStamp;
+                        push(pool[k]);
+                    }
+                    poolCount = runStart;
+                    lastRow = -1;
+                }
+                deepest = Math.max(deepest, r + 1);
+                continue;
+            }
+
+            if (r != lastRow) {
+                runStart = poolCount;
+                lastRow = r;
+            }
+            poolMark[i] = solveStamp;
+            pool[poolCount++] = i;
+            int[][] neighbors = { { r - 1, c }, { r + 1, c }, { r, c - 1 }, { r, c + 1 } };
+            for (int[] n : neighbors) {
+                int nr = n[0], nc = n[1];
+                if (!isOpen(grid, nr, nc, topRow) || visitedMark[nr * width + nc] == solveStamp) continue;
+                total += visit(grid, waterVolume, nr * width + nc);
+                deepest = Math.max(deepest, nr);
+            }
+        }
+
+        // Water that was counted but lies outside the pool drains into it
+        for (int k = 0; k < visitedCount; k++) {
+            int i = visited[k];
+            int r = i / width, c = i % width;
+            if (poolMark[i] != solveStamp && grid[r][c] == Element.WATER) {
+                waterVolume[r][c] = 0.0;
+                grid[r][c] = Element.EMPTY;
+                markDirty(r, c);
+            }
+        }
+
+        // Fill level by level in submersion order; the last level taken gets the remainder spread evenly
+        double remaining = total;
+        int from = 0;
+        while (from < poolCount) {
+            int row = pool[from] / width;
+            int to = from;
+            while (to < poolCount && pool[to] / width == row) to++;
+            int n = to - from;
+            if (remaining <= 0) {
+                fillLevel(grid, waterVolume, from, to, 0.0);
+            } else if (remaining >= n && to < poolCount) {
+                fillLevel(grid, waterVolume, from, to, 1.0);
+                remaining -= n;
+            } else {
+                int wet = 0;
+                for (int k = from; k < to; k++) {
+                    int i = pool[k];
+                    if (grid[i / width][i % width] == Element.WATER) wet++;
+                }
+                int cells = n;
+                if (remaining / n < MIN_SPREAD_VOLUME) {
+                    // Too little to film the whole level: keep it compact, but never above one unit per cell
+                    cells = Math.min(n, Math.max(wet, (int) Math.ceil(remaining - 1e-9)));
+                    gatherAroundWater(grid, from, to, cells);
+                }
+                fillLevel(grid, waterVolume, from, from + cells, remaining / cells);
+                fillLevel(grid, waterVolume, from + cells, to, 0.0);
+                remaining = 0;
+            }
+            from = to;
+        }
+    }
+
+    private boolean isOpen(Element[][] grid, int r, int c, int topRow) {
+        if (r < topRow || r >= height || c < 0 || c >= width) return false;
+        return grid[r][c] == Element.EMPTY || grid[r][c] == Element.WATER;
+    }
+
+    // Queues a cell for the pool and returns the water it already holds
+    private double visit(Element[][] grid, double[][] waterVolume, int i) {
+        int r = i / width, c = i % width;
+        visitedMark[i] = solveStamp;
+        visited[visitedCount++] = i;
+        push(i);
+        return grid[r][c] == Element.WATER ? waterVolume[r][c] : 0.0;
+    }
+
+    private void push(int i) {
+        int r = i / width;
+        bucketNext[i] = bucketHead[r];
+        bucketHead[r] = i;
+    }
+
+    /*
+     * Reorders pool[from, to) so its first cells are the level's water (or the first cell submerged)
+     * followed by the cells next to it, nearest first along the row, then anything left over.
+     */
+    private void gatherAroundWater(Element[][] grid, int from, int to, int cells) {
+        int taken = 0;
+        for (int k = from; k < to; k++) {
+            int i = pool[k];
+            if (grid[i / width][i % width] == Element.WATER) {
+                spread[taken++] = i;
+            } else {
+                levelMark[i] = solveStamp;
+            }
+        }
+        if (taken == 0) {
+            // Nothing standing here yet, so gather around where the water lands
+            levelMark[pool[from]] = 0;
+            spread[taken++] = pool[from];
+        }
+        for (int k = 0; k < taken && taken < cells; k++) {
+            int i = spread[k];
+            int c = i % width;
+            if (c > 0 && levelMark[i - 1] == solveStamp) {
+                levelMark[i - 1] = 0;
+                spread[taken++] = i - 1;
+            }
+            if (c < width - 1 && taken < cells && levelMark[i + 1] == solveStamp) {
+                levelMark[i + 1] = 0;
+                spread[taken++] = i + 1;
+            }
+        }
+        for (int k = from; k < to; k++) {
+            int i = pool[k];
+            if (levelMark[i] == solveStamp) {
+                levelMark[i] = 0;
+                spread[taken++] = i;
+            }
+        }
+        System.arraycopy(spread, 0, pool, from, to - from);
+    }
+
+    private void fillLevel(Element[][] grid, double[][] waterVolume, int from, int to, double level) {
+        for (int k = from; k < to; k++) {
+            int i = pool[k];
+            int r = i / width, c = i % width;
+            waterVolume[r][c] = level;
+            Element element = level > 0 ? Element.WATER : Element.EMPTY;
+            if (grid[r][c] != element) {
+                grid[r][c] = element;
+                markDirty(r, c);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.marko.rain.ensemble;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class EnsembleRunner implements AutoCloseable {
+    private static final int CHUNK_SIZE = 64;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private final ExecutorService pool;
+    private final int threads;
+
+    public EnsembleRunner(int threads) {
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /*
+     * Trials are split into fixed chunks that are summarised on the pool and merged back in chunk
+     * order, so the result depends only on the seed, never on the thread count or scheduling.
+     */
+    public void run(Trial trial, int trials, long seed, Summary... summaries) {
+        if (summaries.length != trial.metricCount()) {
+            throw new IllegalArgumentException("Trial writes " + trial.metricCount() + " metrics but " + summaries.length + " summaries were given");
+        }
+        int chunks = (trials + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int maxInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+        Deque<Future<Summary[]>> inFlight = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            while (submitted < chunks || !inFlight.isEmpty()) {
+                while (submitted < chunks && inFlight.size() < maxInFlight) {
+                    int from = submitted * CHUNK_SIZE;
+                    int to = Math.min(trials, from + CHUNK_SIZE);
+                    inFlight.add(pool.submit(() -> runChunk(trial, from, to, seed, summaries)));
+                    submitted++;
+                }
+                Summary[] partial = inFlight.poll().get();
+                for (int i = 0; i < summaries.length; i++) {
+                    summaries[i].merge(partial[i]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ensemble run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ensemble trial failed", e.getCause());
+        } finally {
+            for (Future<Summary[]> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static Summary[] runChunk(Trial trial, int from, int to, long seed, Summary[] prototypes) {
+        Summary[] local = new Summary[prototypes.length];
+        for (int i = 0; i < local.length; i++) {
+            local[i] = prototypes[i].emptyCopy();
+        }
+        double[] metrics = new double[local.length];
+        for (int t = from; t < to; t++) {
+            trial.run(trialSeed(seed, t), metrics);
+            for (int i = 0; i < local.length; i++) {
+                local[i].add(metrics[i]);
+            }
+        }
+        return local;
+    }
+
+    public static long trialSeed(long seed, int trial) {
+        long z = seed + (trial + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        try (EnsembleRunner runner = new EnsembleRunner(threads)) {
+            System.out.println("Cave generation, " + trials + " trials per point, " + threads + " threads");
+            for (int p = 40; p <= 50; p += 2) {
+                double wallProbability = p / 100.0;
+                Summary walls = new Summary("wall fraction", 0, 1);
+                Summary largest = new Summary("largest cavern", 0, 1);
+                Summary caverns = new Summary("caverns", 0, 200);
+                long start = System.nanoTime();
+                runner.run(Trials.cave(60, 80, wallProbability, 6, 2, 5), trials, seed, walls, largest, caverns);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("p=%.2f (%d ms)%n  %s%n  %s%n  %s%n", wallProbability, millis, walls, largest, caverns);
+            }
+
+            System.out.println("2D Life, " + trials + " trials per point");
+            for (int d = 10; d <= 60; d += 10) {
+                double density = d / 100.0;
+                Summary alive = new Summary("alive after 100", 0, 1);
+                runner.run(Trials.life(50, density, false, 100), trials, seed, alive);
+                System.out.printf("density=%.2f%n  %s%n", density, alive);
+            }
+        }
+    }
+}
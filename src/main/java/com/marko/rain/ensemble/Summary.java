@@ -0,0 +1,136 @@
+package com.marko.rain.ensemble;
+
+public class Summary {
+    private static final int BINS = 1000;
+
+    private final String name;
+    private final double low;
+    private final double high;
+    private final long[] bins = new long[BINS];
+    private long count;
+    private long belowRange;
+    private long aboveRange;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public Summary(String name, double low, double high) {
+        if (!(high > low)) throw new IllegalArgumentException("Summary range must satisfy low < high");
+        this.name = name;
+        this.low = low;
+        this.high = high;
+    }
+
+    public Summary emptyCopy() {
+        return new Summary(name, low, high);
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value < low) {
+            belowRange++;
+        } else if (value > high) {
+            aboveRange++;
+        } else {
+            bins[binOf(value)]++;
+        }
+    }
+
+    public void merge(Summary other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+        } else {
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        }
+        count += other.count;
+        belowRange += other.belowRange;
+        aboveRange += other.aboveRange;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < BINS; i++) {
+            bins[i] += other.bins[i];
+        }
+    }
+
+    private int binOf(double value) {
+        int bin = (int) ((value - low) / (high - low) * BINS);
+        return Math.max(0, Math.min(BINS - 1, bin));
+    }
+
+    /*
+     * Quantiles come from a fixed histogram over [low, high], so they are exact to one bin width.
+     * Samples outside the range are only counted, and a quantile that lands among them is NaN.
+     */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        double rank = q * count;
+        if (belowRange > 0 && rank <= belowRange) return Double.NaN;
+        long seen = belowRange;
+        for (int i = 0; i < BINS; i++) {
+            if (bins[i] > 0 && seen + bins[i] >= rank) {
+                double within = (rank - seen) / bins[i];
+                double value = low + (i + within) * (high - low) / BINS;
+                return Math.max(min, Math.min(max, value));
+            }
+            seen += bins[i];
+        }
+        return aboveRange > 0 ? Double.NaN : max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    public double getVariance() {
+        return count < 2 ? 0.0 : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public long getBelowRange() {
+        return belowRange;
+    }
+
+    public long getAboveRange() {
+        return aboveRange;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        String text = String.format("%s: n=%d mean=%.4f sd=%.4f min=%.4f p05=%.4f p50=%.4f p95=%.4f max=%.4f",
+                name, count, getMean(), getStandardDeviation(), min, quantile(0.05), quantile(0.5), quantile(0.95), max);
+        if (belowRange > 0 || aboveRange > 0) {
+            text += String.format(" (outside [%s, %s]: %d below, %d above)", low, high, belowRange, aboveRange);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,9 @@
+package com.marko.rain.ensemble;
+
+public interface Trial {
+    // How many values run() writes; the runner checks this against the summaries it is given
+    int metricCount();
+
+    // Runs one independent simulation from the given seed and writes one value per metric
+    void run(long seed, double[] metrics);
+}
@@ -0,0 +1,89 @@
+package com.marko.rain.ensemble;
+
+import com.marko.rain.cellularautomatontwod.CellularAutomaton2D;
+import com.marko.rain.elements.CaveWorld;
+import com.marko.rain.elements.Element;
+
+import java.util.Random;
+
+public final class Trials {
+    private Trials() {
+    }
+
+    // Metrics: wall fraction, largest cavern as a fraction of open cells, number of caverns
+    public static Trial cave(int height, int width, double wallProbability, int birthLimit, int survivalLimit, int smoothingPasses) {
+        return new Trial() {
+            @Override
+            public int metricCount() {
+                return 3;
+            }
+
+            @Override
+            public void run(long seed, double[] metrics) {
+                CaveWorld world = new CaveWorld(height, width, new Random(seed));
+                world.initializeGrid(wallProbability, birthLimit, survivalLimit, smoothingPasses);
+
+                boolean[] visited = new boolean[height * width];
+                int[] stack = new int[height * width];
+                int walls = 0, open = 0, caverns = 0, largest = 0;
+                for (int r = 0; r < height; r++) {
+                    for (int c = 0; c < width; c++) {
+                        if (world.getElement(r, c) == Element.WALL) {
+                            walls++;
+                            continue;
+                        }
+                        open++;
+                        if (visited[r * width + c]) continue;
+                        caverns++;
+                        int size = 0, top = 0;
+                        stack[top++] = r * width + c;
+                        visited[r * width + c] = true;
+                        while (top > 0) {
+                            int i = stack[--top];
+                            size++;
+                            int rr = i / width, cc = i % width;
+                            int[][] neighbors = { { rr - 1, cc }, { rr + 1, cc }, { rr, cc - 1 }, { rr, cc + 1 } };
+                            for (int[] n : neighbors) {
+                                if (n[0] < 0 || n[0] >= height || n[1] < 0 || n[1] >= width) continue;
+                                int j = n[0] * width + n[1];
+                                if (!visited[j] && world.getElement(n[0], n[1]) != Element.WALL) {
+                                    visited[j] = true;
+                                    stack[top++] = j;
+                                }
+                            }
+                        }
+                        largest = Math.max(largest, size);
+                    }
+                }
+                metrics[0] = (double) walls / (height * width);
+                metrics[1] = open == 0 ? 0.0 : (double) largest / open;
+                metrics[2] = caverns;
+            }
+        };
+    }
+
+    // Metric: fraction of live cells after the given number of generations
+    public static Trial life(int size, double density, boolean caveMode, int generations) {
+        return new Trial() {
+            @Override
+            public int metricCount() {
+                return 1;
+            }
+
+            @Override
+            public void run(long seed, double[] metrics) {
+                int[][] grid = CellularAutomaton2D.randomGrid(size, density, new Random(seed));
+                for (int g = 0; g < generations; g++) {
+                    grid = CellularAutomaton2D.nextGeneration(grid, caveMode);
+                }
+                int alive = 0;
+                for (int[] row : grid) {
+                    for (int cell : row) {
+                        alive += cell;
+                    }
+                }
+                metrics[0] = (double) alive / (size * size);
+            }
+        };
+    }
+}
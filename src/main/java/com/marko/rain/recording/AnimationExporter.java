@@ -0,0 +1,102 @@
+package com.marko.rain.recording;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public final class AnimationExporter {
+    private AnimationExporter() {
+    }
+
+    public static void exportGif(FrameReader reader, Path output, int cellSize, int delayMillis) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(stream);
+            writer.prepareWriteSequence(null);
+            for (int f = 0; f < reader.getFrameCount(); f++) {
+                BufferedImage image = render(reader, reader.readFrame(f), cellSize);
+                IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null);
+                String format = metadata.getNativeMetadataFormatName();
+                IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+                IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+                control.setAttribute("disposalMethod", "none");
+                control.setAttribute("userInputFlag", "FALSE");
+                control.setAttribute("transparentColorFlag", "FALSE");
+                control.setAttribute("delayTime", Integer.toString(Math.max(1, delayMillis / 10)));
+                control.setAttribute("transparentColorIndex", "0");
+                root.appendChild(control);
+
+                if (f == 0) {
+                    IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+                    IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                    loop.setAttribute("applicationID", "NETSCAPE");
+                    loop.setAttribute("authenticationCode", "2.0");
+                    loop.setUserObject(new byte[]{ 1, 0, 0 });
+                    extensions.appendChild(loop);
+                    root.appendChild(extensions);
+                }
+                metadata.setFromTree(format, root);
+                writer.writeToSequence(new IIOImage(image, null, metadata), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    public static void exportPngSequence(FrameReader reader, Path directory, int cellSize) throws IOException {
+        Files.createDirectories(directory);
+        for (int f = 0; f < reader.getFrameCount(); f++) {
+            BufferedImage image = render(reader, reader.readFrame(f), cellSize);
+            ImageIO.write(image, "png", directory.resolve(String.format("frame-%06d.png", f)).toFile());
+        }
+    }
+
+    private static BufferedImage render(FrameReader reader, byte[] cells, int cellSize) {
+        int width = reader.getWidth();
+        int height = reader.getHeight();
+        int[] palette = reader.getPalette();
+        BufferedImage image = new BufferedImage(width * cellSize, height * cellSize, BufferedImage.TYPE_INT_RGB);
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                int state = cells[r * width + c] & 0xFF;
+                int rgb = state < palette.length ? palette[state] : 0xFFFFFF;
+                for (int y = 0; y < cellSize; y++) {
+                    for (int x = 0; x < cellSize; x++) {
+                        image.setRGB(c * cellSize + x, r * cellSize + y, rgb);
+                    }
+                }
+            }
+        }
+        return image;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: AnimationExporter <recording> <output.gif | output-directory> [cellSize] [delayMillis]");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        int cellSize = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int delay = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        try (FrameReader reader = new FrameReader(input)) {
+            if (output.toString().toLowerCase().endsWith(".gif")) {
+                exportGif(reader, output, cellSize, delay);
+            } else {
+                exportPngSequence(reader, output, cellSize);
+            }
+            System.out.println("Exported " + reader.getFrameCount() + " frames (" + reader.getDroppedFrames() + " dropped while recording)");
+        }
+    }
+}
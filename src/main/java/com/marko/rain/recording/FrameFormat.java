@@ -0,0 +1,97 @@
+package com.marko.rain.recording;
+
+import java.io.ByteArrayOutputStream;
+
+/*
+ * File layout:
+ *   header  MAGIC, VERSION, width, height, keyframeInterval, paletteSize, palette RGB ints
+ *   frames  type byte, generation long, payload length int, payload
+ *           keyframe payload: run-length pairs (varint run, state byte)
+ *           delta payload:    varint change count, then (varint gap from previous change, state byte)
+ *   index   keyframe count, (frame number int, file offset long) per keyframe, frame count int, dropped long
+ *   footer  index offset long, MAGIC
+ */
+final class FrameFormat {
+    static final int MAGIC = 0x43415246; // "CARF"
+    static final int VERSION = 1;
+    static final byte KEYFRAME = 0;
+    static final byte DELTA = 1;
+    static final int RECORD_HEADER_SIZE = 1 + 8 + 4;
+    static final int FOOTER_SIZE = 8 + 4;
+
+    private FrameFormat() {
+    }
+
+    static byte[] encodeKeyframe(byte[] cells) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < cells.length) {
+            int run = 1;
+            while (i + run < cells.length && cells[i + run] == cells[i]) run++;
+            writeVarint(out, run);
+            out.write(cells[i]);
+            i += run;
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] encodeDelta(byte[] previous, byte[] cells) {
+        ByteArrayOutputStream changes = new ByteArrayOutputStream();
+        int count = 0;
+        int last = -1;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != previous[i]) {
+                writeVarint(changes, i - last - 1);
+                changes.write(cells[i]);
+                last = i;
+                count++;
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(changes.size() + 5);
+        writeVarint(out, count);
+        out.write(changes.toByteArray(), 0, changes.size());
+        return out.toByteArray();
+    }
+
+    static void decodeKeyframe(byte[] payload, byte[] cells) {
+        int[] pos = { 0 };
+        int i = 0;
+        while (pos[0] < payload.length) {
+            int run = readVarint(payload, pos);
+            byte value = payload[pos[0]++];
+            for (int k = 0; k < run; k++) {
+                cells[i++] = value;
+            }
+        }
+    }
+
+    static void decodeDelta(byte[] payload, byte[] cells) {
+        int[] pos = { 0 };
+        int count = readVarint(payload, pos);
+        int index = -1;
+        for (int k = 0; k < count; k++) {
+            index += readVarint(payload, pos) + 1;
+            cells[index] = payload[pos[0]++];
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] in, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
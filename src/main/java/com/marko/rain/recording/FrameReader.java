@@ -0,0 +1,122 @@
+package com.marko.rain.recording;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+public class FrameReader implements AutoCloseable {
+    private final RandomAccessFile file;
+    private final int width;
+    private final int height;
+    private final int[] palette;
+    private final int[] keyframeNumbers;
+    private final long[] keyframeOffsets;
+    private final int frameCount;
+    private final long droppedFrames;
+
+    private final byte[] cells;
+    private int current = -1;
+    private long currentGeneration;
+    private long nextOffset;
+
+    public FrameReader(Path path) throws IOException {
+        file = new RandomAccessFile(path.toFile(), "r");
+        if (file.readInt() != FrameFormat.MAGIC || file.readInt() != FrameFormat.VERSION) {
+            file.close();
+            throw new IOException("Not a frame recording: " + path);
+        }
+        width = file.readInt();
+        height = file.readInt();
+        file.readInt(); // keyframe interval, informational
+        palette = new int[file.readInt()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = file.readInt();
+        }
+
+        file.seek(file.length() - FrameFormat.FOOTER_SIZE);
+        long indexOffset = file.readLong();
+        if (file.readInt() != FrameFormat.MAGIC) {
+            file.close();
+            throw new IOException("Recording was not finalised: " + path);
+        }
+        file.seek(indexOffset);
+        int keyframes = file.readInt();
+        keyframeNumbers = new int[keyframes];
+        keyframeOffsets = new long[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeNumbers[i] = file.readInt();
+            keyframeOffsets[i] = file.readLong();
+        }
+        frameCount = file.readInt();
+        droppedFrames = file.readLong();
+        cells = new byte[width * height];
+    }
+
+    // Returns the decoded cells of the given frame; the array is reused by the next call
+    public byte[] readFrame(int frame) throws IOException {
+        if (frame < 0 || frame >= frameCount) throw new IndexOutOfBoundsException("Frame " + frame + " of " + frameCount);
+        if (frame == current) return cells;
+        int k = keyframeIndex(frame);
+        if (current < 0 || frame < current || keyframeNumbers[k] > current) {
+            nextOffset = keyframeOffsets[k];
+            current = keyframeNumbers[k] - 1;
+        }
+        while (current < frame) {
+            file.seek(nextOffset);
+            byte type = file.readByte();
+            currentGeneration = file.readLong();
+            byte[] payload = new byte[file.readInt()];
+            file.readFully(payload);
+            if (type == FrameFormat.KEYFRAME) {
+                FrameFormat.decodeKeyframe(payload, cells);
+            } else {
+                FrameFormat.decodeDelta(payload, cells);
+            }
+            nextOffset += FrameFormat.RECORD_HEADER_SIZE + payload.length;
+            current++;
+        }
+        return cells;
+    }
+
+    private int keyframeIndex(int frame) {
+        int lo = 0, hi = keyframeNumbers.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (keyframeNumbers[mid] <= frame) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    public long getGeneration() {
+        return currentGeneration;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int[] getPalette() {
+        return palette.clone();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
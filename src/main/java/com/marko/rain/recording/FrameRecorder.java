@@ -0,0 +1,173 @@
+package com.marko.rain.recording;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FrameRecorder implements AutoCloseable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    private final int width;
+    private final int height;
+    private final int keyframeInterval;
+    private final BlockingQueue<Frame> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread encoder;
+    private final Thread shutdownHook;
+    private final DataOutputStream out;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private final List<Integer> keyframeNumbers = new ArrayList<>();
+    private final List<Long> keyframeOffsets = new ArrayList<>();
+    private long position;
+    private int frameCount;
+    private byte[] previous;
+
+    private record Frame(long generation, byte[] cells) {
+    }
+
+    public FrameRecorder(Path file, int width, int height, int[] palette) throws IOException {
+        this(file, width, height, palette, DEFAULT_QUEUE_CAPACITY, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public FrameRecorder(Path file, int width, int height, int[] palette, int queueCapacity, int keyframeInterval) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.keyframeInterval = keyframeInterval;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16));
+
+        out.writeInt(FrameFormat.MAGIC);
+        out.writeInt(FrameFormat.VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(keyframeInterval);
+        out.writeInt(palette.length);
+        for (int rgb : palette) {
+            out.writeInt(rgb);
+        }
+        position = 6 * 4 + palette.length * 4L;
+        out.flush();
+
+        // The UIs exit through System.exit, so finish the file from a shutdown hook if still open then
+        encoder = new Thread(this::encodeLoop, "frame-recorder");
+        shutdownHook = new Thread(this::finishOnExit, "frame-recorder-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        encoder.start();
+    }
+
+    /*
+     * Hands a snapshot to the encoder thread without ever blocking. The recorder takes ownership
+     * of the array; if the queue is full the frame is dropped and counted instead. Once the encoder
+     * has failed nothing more is accepted and getFailure() says why.
+     */
+    public boolean record(long generation, byte[] cells) {
+        if (cells.length != width * height) throw new IllegalArgumentException("Frame size does not match recording size");
+        if (failure != null) return false;
+        if (closed || !queue.offer(new Frame(generation, cells))) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getDroppedFrames() {
+        return dropped.get();
+    }
+
+    public IOException getFailure() {
+        return failure;
+    }
+
+    // Stops accepting frames; the encoder drains the queue and finalises the file in the background,
+    // and holds the JVM open at exit until it has
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public void awaitTermination() throws IOException, InterruptedException {
+        closed = true;
+        encoder.join();
+        if (failure != null) throw failure;
+    }
+
+    private void finishOnExit() {
+        try {
+            awaitTermination();
+        } catch (IOException e) {
+            System.err.println("Could not finish recording: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void encodeLoop() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Frame frame = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (frame != null) {
+                    writeFrame(frame);
+                }
+            }
+            writeIndex();
+        } catch (IOException e) {
+            failure = e;
+            closed = true;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook is what is waiting on us
+            }
+        }
+    }
+
+    private void writeFrame(Frame frame) throws IOException {
+        boolean key = previous == null || frameCount % keyframeInterval == 0;
+        byte[] payload = key ? FrameFormat.encodeKeyframe(frame.cells()) : FrameFormat.encodeDelta(previous, frame.cells());
+        if (key) {
+            keyframeNumbers.add(frameCount);
+            keyframeOffsets.add(position);
+        }
+        out.writeByte(key ? FrameFormat.KEYFRAME : FrameFormat.DELTA);
+        out.writeLong(frame.generation());
+        out.writeInt(payload.length);
+        out.write(payload);
+        position += FrameFormat.RECORD_HEADER_SIZE + payload.length;
+        previous = frame.cells();
+        frameCount++;
+    }
+
+    private void writeIndex() throws IOException {
+        long indexOffset = position;
+        out.writeInt(keyframeNumbers.size());
+        for (int i = 0; i < keyframeNumbers.size(); i++) {
+            out.writeInt(keyframeNumbers.get(i));
+            out.writeLong(keyframeOffsets.get(i));
+        }
+        out.writeInt(frameCount);
+        out.writeLong(dropped.get());
+        out.writeLong(indexOffset);
+        out.writeInt(FrameFormat.MAGIC);
+    }
+}